@@ -1,15 +1,45 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Scanner;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
-import static java.util.Objects.requireNonNull;
-
 class Parser {
     private String commandName = "";
     private String[] args = {};
@@ -45,255 +75,1159 @@ class Parser {
     }
 }
 
-public class Terminal {
+enum ArchiveFormat {
+    ZIP, TAR, TGZ;
 
-    private final Parser parser = new Parser();
-    private File currentDir;
+    static final int BUFFER_SIZE = 64 * 1024;
 
-    public Terminal() {
-        try {
-            this.currentDir = new File(System.getProperty("user.dir")).getCanonicalFile();
-        } catch (Exception e) {
-            System.err.println("Failed to get current directory. Defaulting to user home.");
-            this.currentDir = new File(System.getProperty("user.home"));
+    static ArchiveFormat fromName(String name) {
+        String lower = name.toLowerCase();
+        if (lower.endsWith(".tar.gz") || lower.endsWith(".tgz")) {
+            return TGZ;
         }
+        return lower.endsWith(".tar") ? TAR : ZIP;
     }
 
-    public static void main(String[] args) {
-        Terminal terminal = new Terminal();
-        Scanner scanner = new Scanner(System.in);
-        String input;
+    static ArchiveFormat fromFlag(String flag) {
+        return switch (flag.toLowerCase()) {
+            case "zip" -> ZIP;
+            case "tar" -> TAR;
+            case "tgz", "tar.gz" -> TGZ;
+            default -> null;
+        };
+    }
 
-        while (true) {
-            System.out.print(terminal.pwd());
-            System.out.print("> ");
-            if (scanner.hasNextLine()) {
-                input = scanner.nextLine();
-            } else {
-                break;
-            }
+    ArchiveWriter openWriter(OutputStream out) throws IOException {
+        return switch (this) {
+            case ZIP -> new ZipArchiveWriter(out);
+            case TAR -> new TarArchiveWriter(out);
+            case TGZ -> new TarArchiveWriter(new GZIPOutputStream(out, BUFFER_SIZE));
+        };
+    }
 
-            if (terminal.parser.parse(input)) {
-                String commandName = terminal.parser.getCommandName();
-                String[] arguments = terminal.parser.getArgs();
+    static ArchiveReader openReader(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(1);
+        if (buffered.read() < 0) {
+            throw new EOFException("Archive is empty.");
+        }
+        buffered.reset();
+        if (startsWith(buffered, 0x1f, 0x8b)) {
+            buffered = new BufferedInputStream(new GZIPInputStream(buffered, BUFFER_SIZE), BUFFER_SIZE);
+        }
+        if (startsWith(buffered, 'P', 'K', 3, 4) || startsWith(buffered, 'P', 'K', 5, 6)) {
+            return new ZipArchiveReader(buffered);
+        }
+        return new TarArchiveReader(buffered);
+    }
 
-                if (commandName.equalsIgnoreCase("exit")) {
-                    System.out.println("Terminating!");
-                    break;
-                } else {
-                    terminal.chooseCommandAction(commandName, arguments);
+    private static boolean startsWith(BufferedInputStream in, int... signature) throws IOException {
+        in.mark(signature.length);
+        try {
+            for (int expected : signature) {
+                if (in.read() != expected) {
+                    return false;
                 }
             }
+            return true;
+        } finally {
+            in.reset();
         }
-        scanner.close();
     }
 
-    private File resolvePath(String path) {
-        File file = new File(path);
-        if (file.isAbsolute()) {
-            return file;
-        } else {
-            return new File(currentDir, path);
+    static void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+        int length;
+        while ((length = in.read(buffer)) > 0) {
+            out.write(buffer, 0, length);
         }
     }
+}
 
-    public String pwd() {
-        return currentDir.getAbsolutePath();
+interface ArchiveWriter extends Closeable {
+    void putDirectory(String name) throws IOException;
+
+    void putFile(String name, File file) throws IOException;
+}
+
+interface ArchiveReader extends Closeable {
+    // Returns the next entry name, with directories ending in '/', or null at the end.
+    String nextEntry() throws IOException;
+
+    // Content of the current entry; never closes the underlying archive stream.
+    InputStream entryStream();
+}
+
+class ZipArchiveWriter implements ArchiveWriter {
+    private final ZipOutputStream out;
+    private final byte[] buffer = new byte[ArchiveFormat.BUFFER_SIZE];
+
+    ZipArchiveWriter(OutputStream out) {
+        this.out = new ZipOutputStream(new BufferedOutputStream(out, ArchiveFormat.BUFFER_SIZE));
     }
 
-    public void cd(String[] args) {
-        File temp;
-        if (args.length == 0) {
-            temp = new File(System.getProperty("user.home"));
-        } else if (args.length == 1) {
-            temp = resolvePath(args[0]);
-        } else {
-            System.err.println("Invalid number of arguments for cd command.");
-            return;
+    @Override
+    public void putDirectory(String name) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.closeEntry();
+    }
+
+    @Override
+    public void putFile(String name, File file) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        try (FileInputStream fis = new FileInputStream(file)) {
+            ArchiveFormat.copy(fis, out, buffer);
         }
-        if (temp.exists() && temp.isDirectory()) {
-            try {
-                currentDir = temp.getCanonicalFile();
-            } catch (Exception e) {
-                System.err.println("Failed to change directory to " + temp.getAbsolutePath());
+        out.closeEntry();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
+
+class ZipArchiveReader implements ArchiveReader {
+    private final ZipInputStream in;
+
+    ZipArchiveReader(InputStream in) {
+        this.in = new ZipInputStream(in);
+    }
+
+    @Override
+    public String nextEntry() throws IOException {
+        ZipEntry entry = in.getNextEntry();
+        return entry == null ? null : entry.getName();
+    }
+
+    @Override
+    public InputStream entryStream() {
+        return new FilterInputStream(in) {
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
+
+class TarArchiveWriter implements ArchiveWriter {
+    static final int BLOCK_SIZE = 512;
+    static final String LONG_NAME = "././@LongLink";
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[ArchiveFormat.BUFFER_SIZE];
+
+    TarArchiveWriter(OutputStream out) {
+        this.out = new BufferedOutputStream(out, ArchiveFormat.BUFFER_SIZE);
+    }
+
+    @Override
+    public void putDirectory(String name) throws IOException {
+        writeHeader(name.endsWith("/") ? name : name + "/", '5', 0, 0755, System.currentTimeMillis());
+    }
+
+    @Override
+    public void putFile(String name, File file) throws IOException {
+        long size = file.length();
+        writeHeader(name, '0', size, 0644, file.lastModified());
+        long remaining = size;
+        try (FileInputStream fis = new FileInputStream(file)) {
+            int length;
+            while (remaining > 0 && (length = fis.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+                out.write(buffer, 0, length);
+                remaining -= length;
             }
-        } else {
-            System.err.println("Directory " + temp.getAbsolutePath() + " does not exist.");
         }
+        // A file that shrank while being archived is zero-filled to the size already declared.
+        while (remaining > 0) {
+            int length = (int) Math.min(buffer.length, remaining);
+            out.write(new byte[length]);
+            remaining -= length;
+        }
+        pad(size);
     }
 
-    public void ls(String[] args) {
-        if (!currentDir.exists() || !currentDir.isDirectory()) {
-            System.err.println("Directory " + currentDir.getAbsolutePath() + " does not exist or is not a directory.");
-            return;
+    private void writeHeader(String name, char type, long size, int mode, long modified) throws IOException {
+        byte[] nameBytes = name.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        if (nameBytes.length > 100) {
+            writeHeader(LONG_NAME, 'L', nameBytes.length + 1, 0644, 0);
+            out.write(nameBytes);
+            out.write(0);
+            pad(nameBytes.length + 1);
+            nameBytes = java.util.Arrays.copyOf(nameBytes, 100);
         }
-        File[] files = currentDir.listFiles();
-        if (files == null) {
-            System.err.println("Failed to list contents of " + currentDir.getAbsolutePath());
+        byte[] header = new byte[BLOCK_SIZE];
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        writeOctal(header, 100, 8, mode);
+        writeOctal(header, 108, 8, 0);
+        writeOctal(header, 116, 8, 0);
+        writeSize(header, size);
+        writeOctal(header, 136, 12, modified / 1000);
+        header[156] = (byte) type;
+        System.arraycopy("ustar\0".getBytes(), 0, header, 257, 6);
+        header[263] = '0';
+        header[264] = '0';
+        java.util.Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        writeOctal(header, 148, 7, checksum);
+        out.write(header);
+    }
+
+    private static void writeSize(byte[] header, long size) {
+        if (size < 077777777777L) {
+            writeOctal(header, 124, 12, size);
             return;
         }
-        if (args.length == 0) {
-            for (int i = 0; i < files.length; i++) {
-                System.out.println(i + 1 + "-" + files[i].getName() + (files[i].isDirectory() ? "\\" : "") + "\t");
-            }
-            System.out.println();
-        } else if (args.length == 2 && args[0].equals(">")) {
-            try {
-                File file2 = resolvePath(args[1]);
-                StringBuilder output = new StringBuilder();
+        // GNU base-256 encoding for entries of 8 GiB and above.
+        for (int i = 135; i > 124; i--) {
+            header[i] = (byte) size;
+            size >>>= 8;
+        }
+        header[124] = (byte) 0x80;
+    }
 
-                for (int i = 0; i < files.length; i++) {
-                    output.append((i + 1)).append("-").append(files[i].getName()).append(files[i].isDirectory() ? "\\" : "").append("\n");
-                }
+    private static void writeOctal(byte[] header, int offset, int length, long value) {
+        String octal = Long.toOctalString(value);
+        int start = offset + length - 1 - octal.length();
+        java.util.Arrays.fill(header, offset, start, (byte) '0');
+        System.arraycopy(octal.getBytes(), 0, header, start, octal.length());
+        header[offset + length - 1] = 0;
+    }
 
-                Files.write(file2.toPath(), output.toString().getBytes());
-                System.out.println("Directory content successfully written to " + file2.getName());
-            } catch (IOException e) {
-                System.out.println("Error writing to file: " + e.getMessage());
-            }
-        } else if ((args.length == 2 && args[0].equals(">>"))) {
-            try {
-                File file2 = resolvePath(args[1]);
-                StringBuilder output = new StringBuilder();
+    private void pad(long size) throws IOException {
+        int padding = (int) ((BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE);
+        out.write(new byte[padding]);
+    }
 
-                for (int i = 0; i < files.length; i++) {
-                    output.append((i + 1)).append("-").append(files[i].getName()).append(files[i].isDirectory() ? "\\" : "").append("\n");
-                }
+    @Override
+    public void close() throws IOException {
+        try {
+            out.write(new byte[2 * BLOCK_SIZE]);
+        } finally {
+            out.close();
+        }
+    }
+}
 
-                Files.write(file2.toPath(), output.toString().getBytes(), StandardOpenOption.APPEND);
-                System.out.println("Directory content successfully written to " + file2.getName());
-            } catch (IOException e) {
-                System.out.println("Error writing to file: " + e.getMessage());
+class TarArchiveReader implements ArchiveReader {
+    private final InputStream in;
+    private final byte[] header = new byte[TarArchiveWriter.BLOCK_SIZE];
+    private static final int MAX_METADATA_SIZE = 1 << 20;
+
+    private final Map<String, String> globalPax = new HashMap<>();
+    private long remaining;
+    private long padding;
+
+    TarArchiveReader(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public String nextEntry() throws IOException {
+        skipFully(remaining + padding);
+        remaining = 0;
+        padding = 0;
+        String longName = null;
+        Map<String, String> pax = new HashMap<>(globalPax);
+        while (true) {
+            if (!readHeader()) {
+                return null;
+            }
+            String name = parseString(0, 100);
+            if (parseString(257, 5).equals("ustar") && header[345] != 0) {
+                name = parseString(345, 155) + "/" + name;
+            }
+            char type = (char) header[156];
+            long size = parseSize();
+            // pax records describe the next entry ('x') or all following entries ('g'), and take
+            // precedence over the ustar fields, which are truncated for long names and sizes.
+            if (type != 'x' && type != 'g' && pax.containsKey("size")) {
+                try {
+                    size = Long.parseLong(pax.get("size"));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Corrupt pax size: " + pax.get("size"));
+                }
+            }
+            long entryPadding = (TarArchiveWriter.BLOCK_SIZE - size % TarArchiveWriter.BLOCK_SIZE) % TarArchiveWriter.BLOCK_SIZE;
+            if (type == 'L' || type == 'x' || type == 'g') {
+                if (size > MAX_METADATA_SIZE) {
+                    throw new IOException("Tar metadata entry too large: " + size + " bytes.");
+                }
+                byte[] data = in.readNBytes((int) size);
+                if (data.length != size) {
+                    throw new EOFException("Truncated tar archive.");
+                }
+                skipFully(entryPadding);
+                if (type == 'L') {
+                    int end = 0;
+                    while (end < data.length && data[end] != 0) {
+                        end++;
+                    }
+                    longName = new String(data, 0, end, java.nio.charset.StandardCharsets.UTF_8);
+                } else if (type == 'x') {
+                    parsePaxRecords(data, pax);
+                } else {
+                    parsePaxRecords(data, globalPax);
+                    pax.putAll(globalPax);
+                }
+                continue;
             }
+            if (type != '0' && type != '\0' && type != '5') {
+                skipFully(size + entryPadding);
+                longName = null;
+                pax = new HashMap<>(globalPax);
+                continue;
+            }
+            if (pax.containsKey("path")) {
+                name = pax.get("path");
+            } else if (longName != null) {
+                name = longName;
+            }
+            if (type == '5' && !name.endsWith("/")) {
+                name += "/";
+            }
+            remaining = size;
+            padding = entryPadding;
+            return name;
         }
     }
 
-    private void read(File file1) {
-        if (file1.exists()) {
-            Path filePath = Paths.get(file1.getAbsolutePath());
+    // Each record is "<length> <key>=<value>\n", where length counts the whole record in bytes.
+    private static void parsePaxRecords(byte[] data, Map<String, String> records) throws IOException {
+        int position = 0;
+        while (position < data.length && data[position] != 0) {
+            int space = position;
+            while (space < data.length && data[space] != ' ') {
+                space++;
+            }
+            int length;
             try {
-                List<String> lines = Files.readAllLines(filePath);
-
-                for (String line : lines) {
-                    System.out.println(line);
-                }
-            } catch (IOException e) {
-                System.out.println("Error reading file: " + e.getMessage());
+                length = Integer.parseInt(new String(data, position, space - position, java.nio.charset.StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt pax header.");
             }
-        } else {
-            System.out.println(" File does not exist: \n" + file1 + '\n');
+            int end = position + length;
+            if (length <= 0 || end > data.length || data[end - 1] != '\n') {
+                throw new IOException("Corrupt pax header.");
+            }
+            String record = new String(data, space + 1, end - space - 2, java.nio.charset.StandardCharsets.UTF_8);
+            int equals = record.indexOf('=');
+            if (equals <= 0) {
+                throw new IOException("Corrupt pax header.");
+            }
+            String key = record.substring(0, equals);
+            String value = record.substring(equals + 1);
+            if (value.isEmpty()) {
+                records.remove(key);
+            } else {
+                records.put(key, value);
+            }
+            position = end;
         }
+    }
 
+    private boolean readHeader() throws IOException {
+        int read = in.readNBytes(header, 0, header.length);
+        if (read == 0) {
+            return false;
+        }
+        if (read != header.length) {
+            throw new EOFException("Truncated tar archive.");
+        }
+        long checksum = 0;
+        boolean empty = true;
+        for (int i = 0; i < header.length; i++) {
+            empty &= header[i] == 0;
+            checksum += (i >= 148 && i < 156) ? ' ' : header[i] & 0xff;
+        }
+        if (empty) {
+            return false;
+        }
+        if (checksum != parseOctal(148, 8)) {
+            throw new IOException("Corrupt tar header.");
+        }
+        return true;
     }
 
-    private void readAndWrite(File InFile1, File File2, File File3, Boolean operator) {
-        if (InFile1.exists() && File3 == null && !operator) {
-            Path filePath = Paths.get(InFile1.getAbsolutePath());
-            try {
-                List<String> lines = Files.readAllLines(filePath);
+    private String parseString(int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, java.nio.charset.StandardCharsets.UTF_8);
+    }
 
-                try (BufferedWriter writer = new BufferedWriter(new FileWriter(File2))) {
-                    for (String line : lines) {
-                        writer.write(line);
-                        writer.newLine();
-                    }
-                }
+    private long parseSize() {
+        if ((header[124] & 0x80) != 0) {
+            long size = 0;
+            for (int i = 125; i < 136; i++) {
+                size = (size << 8) | (header[i] & 0xff);
+            }
+            return size;
+        }
+        return parseOctal(124, 12);
+    }
 
-                System.out.println("File content successfully written to " + File2.getName());
-            } catch (IOException e) {
-                System.out.println("Error processing file: " + e.getMessage());
+    private long parseOctal(int offset, int length) {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (header[i] >= '0' && header[i] <= '7') {
+                value = (value << 3) + (header[i] - '0');
+            } else if (header[i] == 0 || (header[i] == ' ' && value != 0)) {
+                break;
             }
-        } else if (InFile1.exists() && File3 == null && operator) {
-            Path filePath = Paths.get(InFile1.getAbsolutePath());
-            try {
-                List<String> lines = Files.readAllLines(filePath);
+        }
+        return value;
+    }
 
-                try (BufferedWriter writer = new BufferedWriter(new FileWriter(File2, true))) {
-                    for (String line : lines) {
-                        writer.write(line);
-                        writer.newLine();
-                    }
+    private void skipFully(long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Truncated tar archive.");
                 }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
 
-                System.out.println("File content successfully written to " + File2.getName());
-            } catch (IOException e) {
-                System.out.println("Error processing file: " + e.getMessage());
+    @Override
+    public InputStream entryStream() {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = in.read();
+                if (b >= 0) {
+                    remaining--;
+                }
+                return b;
             }
-        } else if (InFile1.exists() && File3.exists() && !operator) {
-            Path filePath = Paths.get(InFile1.getAbsolutePath());
-            Path filePath2 = Paths.get(File3.getAbsolutePath());
-            try {
-                List<String> lines = Files.readAllLines(filePath);
-                List<String> lines2 = Files.readAllLines(filePath2);
 
-                try (BufferedWriter writer = new BufferedWriter(new FileWriter(File2))) {
-                    for (String line : lines) {
-                        writer.write(line);
-                        writer.newLine();
-                    }
-                    for (String line2 : lines2) {
-                        writer.write(line2);
-                        writer.newLine();
-                    }
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int read = in.read(bytes, offset, (int) Math.min(length, remaining));
+                if (read > 0) {
+                    remaining -= read;
                 }
+                return read;
+            }
+        };
+    }
 
-                System.out.println("File content successfully written to " + File2.getName());
-            } catch (IOException e) {
-                System.out.println("Error processing file: " + e.getMessage());
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
+
+// Line diff that streams both inputs and prints normal-format hunks as soon as they are known.
+// Common lines are skipped without being retained. A differing region is buffered in a window
+// that doubles until a run of ANCHOR_LINES matching lines closes the hunk, up to MAX_WINDOW lines
+// per side, after which the window slides; memory follows the size of the differing regions
+// (bounded by the window) rather than of the inputs. Each window is compared with the
+// linear-space variant of Myers' O(ND) algorithm, cut off at an edit cost of about sqrt(N).
+class StreamingDiff {
+    private static final int INITIAL_WINDOW = 256;
+    private static final int MAX_WINDOW = 1 << 14;
+    private static final int ANCHOR_LINES = 8;
+
+    private final BufferedReader left;
+    private final BufferedReader right;
+    private final PrintStream out;
+    private final List<String> a = new ArrayList<>();
+    private final List<String> b = new ArrayList<>();
+    private long lineA = 1;
+    private long lineB = 1;
+    private boolean eofA;
+    private boolean eofB;
+    private int[] ia;
+    private int[] ib;
+    private boolean[] removed;
+    private boolean[] added;
+    private int costLimit;
+
+    StreamingDiff(BufferedReader left, BufferedReader right, PrintStream out) {
+        this.left = left;
+        this.right = right;
+        this.out = out;
+    }
+
+    // Returns true when the inputs differ.
+    boolean run() throws IOException {
+        boolean differs = false;
+        int window = INITIAL_WINDOW;
+        while (true) {
+            skipCommonPrefix();
+            if (a.isEmpty() && b.isEmpty()) {
+                return differs;
             }
-        } else if (InFile1.exists() && File3.exists() && operator) {
-            Path filePath = Paths.get(InFile1.getAbsolutePath());
-            Path filePath2 = Paths.get(File3.getAbsolutePath());
-            try {
-                List<String> lines = Files.readAllLines(filePath);
-                List<String> lines2 = Files.readAllLines(filePath2);
+            fill(a, left, window, true);
+            fill(b, right, window, false);
+            boolean complete = eofA && eofB;
+
+            int n = a.size();
+            int m = b.size();
+            intern();
+            removed = new boolean[n];
+            added = new boolean[m];
+            costLimit = costLimit(n + m);
+            compare(0, n, 0, m);
+
+            long commit = complete ? packed(n, m) : findAnchor(n, m);
+            if (commit < 0 && window < MAX_WINDOW) {
+                window *= 2;
+                continue;
+            }
+            if (commit < 0) {
+                // No anchor within the largest window: commit the first half and slide, carrying
+                // the rest of the window into the next comparison instead of growing further.
+                commit = halfwayPoint(n, m);
+            } else {
+                window = INITIAL_WINDOW;
+            }
+            int commitA = (int) (commit >>> 32);
+            int commitB = (int) commit;
+            emitHunks(commitA, commitB);
+            differs = true;
+            consume(commitA, commitB);
+        }
+    }
 
-                try (BufferedWriter writer = new BufferedWriter(new FileWriter(File2, true))) {
-                    for (String line : lines) {
-                        writer.write(line);
-                        writer.newLine();
-                    }
-                    for (String line2 : lines2) {
-                        writer.write(line2);
-                        writer.newLine();
-                    }
+    private static long packed(int i, int j) {
+        return ((long) i << 32) | j;
+    }
+
+    // Returns the position just after the first run of ANCHOR_LINES matching lines, or -1.
+    private long findAnchor(int n, int m) {
+        int i = 0;
+        int j = 0;
+        int run = 0;
+        while (i < n || j < m) {
+            if (i < n && removed[i]) {
+                i++;
+                run = 0;
+            } else if (j < m && added[j]) {
+                j++;
+                run = 0;
+            } else if (i < n && j < m) {
+                i++;
+                j++;
+                if (++run == ANCHOR_LINES) {
+                    return packed(i, j);
                 }
+            } else {
+                break;
+            }
+        }
+        return -1;
+    }
 
-                System.out.println("File content successfully written to " + File2.getName());
-            } catch (IOException e) {
-                System.out.println("Error processing file: " + e.getMessage());
+    // Returns the last matching position before half of the window is consumed, or the halfway
+    // point itself when the first half has no matching line.
+    private long halfwayPoint(int n, int m) {
+        int half = (n + m) / 2;
+        int i = 0;
+        int j = 0;
+        long lastKeep = -1;
+        while (i + j < half) {
+            if (i < n && removed[i]) {
+                i++;
+            } else if (j < m && added[j]) {
+                j++;
+            } else if (i < n && j < m) {
+                i++;
+                j++;
+                lastKeep = packed(i, j);
+            } else {
+                break;
             }
-        } else {
-            System.out.println(" File does not exist: \n" + InFile1 + '\n');
         }
+        return lastKeep > 0 ? lastKeep : packed(i, j);
     }
 
-    private int[] count(File file1) {
-        long lineCount = 0;
-        long wordCount = 0;
-        long charCount = 0;
-        Path filePath = Paths.get(file1.getAbsolutePath());
-        try (Stream<String> lines = Files.lines(filePath)) {
-            List<String> allLines = lines.toList();
-            lineCount = allLines.size();
-            wordCount = allLines.stream().flatMap(line -> java.util.Arrays.stream(line.trim().split("\\s+"))).filter(word -> !word.isEmpty()).count();
-            charCount = allLines.stream().mapToLong(String::length).sum();
-        } catch (IOException e) {
-            System.out.println("Error reading file: " + e.getMessage());
+    // Maps every distinct line in the window to an int so the inner loops compare ints.
+    private void intern() {
+        Map<String, Integer> ids = new HashMap<>();
+        ia = new int[a.size()];
+        ib = new int[b.size()];
+        for (int i = 0; i < ia.length; i++) {
+            ia[i] = ids.computeIfAbsent(a.get(i), line -> ids.size());
+        }
+        for (int j = 0; j < ib.length; j++) {
+            ib[j] = ids.computeIfAbsent(b.get(j), line -> ids.size());
         }
-        return new int[]{(int) lineCount, (int) wordCount, (int) charCount};
     }
 
-    public void cat(String[] args) {
-        if (args.length == 0) {
-            System.err.println("cat command requires one or 2 arguments.");
-            return;
+    // Like GNU diff's "too expensive" bound: about the square root of the input, at least 256.
+    private static int costLimit(int lines) {
+        int limit = 1;
+        for (long diagonals = lines + 3L; diagonals != 0; diagonals >>= 2) {
+            limit <<= 1;
         }
-        if (args.length == 1) {
-            File file1 = resolvePath(args[0]);
-            read(file1);
+        return Math.max(256, limit);
+    }
 
-        } else if (args.length == 2) {
+    private void skipCommonPrefix() throws IOException {
+        while (true) {
+            int k = 0;
+            int n = Math.min(a.size(), b.size());
+            while (k < n && a.get(k).equals(b.get(k))) {
+                k++;
+            }
+            consume(k, k);
+            if (!a.isEmpty() && !b.isEmpty()) {
+                return;
+            }
+            if (a.isEmpty()) {
+                fill(a, left, 1, true);
+            }
+            if (b.isEmpty()) {
+                fill(b, right, 1, false);
+            }
+            if (a.isEmpty() || b.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    private void fill(List<String> lines, BufferedReader reader, int size, boolean isLeft) throws IOException {
+        while (lines.size() < size && !(isLeft ? eofA : eofB)) {
+            String line = reader.readLine();
+            if (line == null) {
+                if (isLeft) {
+                    eofA = true;
+                } else {
+                    eofB = true;
+                }
+            } else {
+                lines.add(line);
+            }
+        }
+    }
+
+    private void consume(int countA, int countB) {
+        a.subList(0, countA).clear();
+        b.subList(0, countB).clear();
+        lineA += countA;
+        lineB += countB;
+    }
+
+    private void emitHunks(int endA, int endB) {
+        int i = 0;
+        int j = 0;
+        while (i < endA || j < endB) {
+            if (i < endA && j < endB && !removed[i] && !added[j]) {
+                i++;
+                j++;
+                continue;
+            }
+            int startA = i;
+            int startB = j;
+            while (i < endA && removed[i]) {
+                i++;
+            }
+            while (j < endB && added[j]) {
+                j++;
+            }
+            if (startA == i && startB == j) {
+                break;
+            }
+            String command = startA == i ? "a" : startB == j ? "d" : "c";
+            out.println(range(lineA, startA, i) + command + range(lineB, startB, j));
+            for (int k = startA; k < i; k++) {
+                out.println("< " + a.get(k));
+            }
+            if (command.equals("c")) {
+                out.println("---");
+            }
+            for (int k = startB; k < j; k++) {
+                out.println("> " + b.get(k));
+            }
+        }
+    }
+
+    private static String range(long base, int start, int end) {
+        if (start == end) {
+            return Long.toString(base + start - 1);
+        }
+        return end - start == 1 ? Long.toString(base + start) : (base + start) + "," + (base + end - 1);
+    }
+
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && ia[aLo] == ib[bLo]) {
+            aLo++;
+            bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && ia[aHi - 1] == ib[bHi - 1]) {
+            aHi--;
+            bHi--;
+        }
+        if (aLo == aHi || bLo == bHi) {
+            markChanged(aLo, aHi, bLo, bHi);
+            return;
+        }
+        int[] snake = middleSnake(aLo, aHi, bLo, bHi);
+        if ((snake[0] == aHi && snake[1] == bHi) || (snake[2] == aLo && snake[3] == bLo)) {
+            markChanged(aLo, aHi, bLo, bHi);
+            return;
+        }
+        compare(aLo, snake[0], bLo, snake[1]);
+        compare(snake[2], aHi, snake[3], bHi);
+    }
+
+    private void markChanged(int aLo, int aHi, int bLo, int bHi) {
+        Arrays.fill(removed, aLo, aHi, true);
+        Arrays.fill(added, bLo, bHi, true);
+    }
+
+    // Too expensive to finish: split at whichever D-path has reached furthest, forward or
+    // backward. The result is still a valid edit script, though no longer a minimal one.
+    private static int[] furthestPoint(int aLo, int aHi, int bLo, int bHi, int d, int offset,
+                                       int[] forward, int[] backward) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int bestForward = -1;
+        int forwardX = 0;
+        int bestBackward = -1;
+        int backwardX = 0;
+        for (int k = -d; k <= d; k += 2) {
+            int x = Math.min(forward[offset + k], n);
+            int y = x - k;
+            if (y >= 0 && y <= m && x + y > bestForward) {
+                bestForward = x + y;
+                forwardX = x;
+            }
+            x = Math.min(backward[offset + k], n);
+            y = x - k;
+            if (y >= 0 && y <= m && x + y > bestBackward) {
+                bestBackward = x + y;
+                backwardX = x;
+            }
+        }
+        if (bestForward >= bestBackward) {
+            int x = aLo + forwardX;
+            int y = bLo + bestForward - forwardX;
+            return new int[]{x, y, x, y};
+        }
+        int x = aHi - backwardX;
+        int y = bHi - (bestBackward - backwardX);
+        return new int[]{x, y, x, y};
+    }
+
+    // Returns {x, y, u, v}: the middle snake of an optimal edit path from (x, y) to (u, v).
+    private int[] middleSnake(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int max = (n + m + 1) / 2;
+        int offset = max + 1;
+        int[] forward = new int[2 * max + 3];
+        int[] backward = new int[2 * max + 3];
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = (k == -d || (k != d && forward[offset + k - 1] < forward[offset + k + 1]))
+                        ? forward[offset + k + 1] : forward[offset + k - 1] + 1;
+                int y = x - k;
+                int startX = x;
+                int startY = y;
+                while (x < n && y < m && ia[aLo + x] == ib[bLo + y]) {
+                    x++;
+                    y++;
+                }
+                forward[offset + k] = x;
+                int reverse = delta - k;
+                if (odd && reverse >= -(d - 1) && reverse <= d - 1 && x + backward[offset + reverse] >= n) {
+                    return new int[]{aLo + startX, bLo + startY, aLo + x, bLo + y};
+                }
+            }
+            for (int k = -d; k <= d; k += 2) {
+                int x = (k == -d || (k != d && backward[offset + k - 1] < backward[offset + k + 1]))
+                        ? backward[offset + k + 1] : backward[offset + k - 1] + 1;
+                int y = x - k;
+                int startX = x;
+                int startY = y;
+                while (x < n && y < m && ia[aHi - x - 1] == ib[bHi - y - 1]) {
+                    x++;
+                    y++;
+                }
+                backward[offset + k] = x;
+                int reverse = delta - k;
+                if (!odd && reverse >= -d && reverse <= d && x + forward[offset + reverse] >= n) {
+                    return new int[]{aHi - x, bHi - y, aHi - startX, bHi - startY};
+                }
+            }
+            if (d >= costLimit) {
+                return furthestPoint(aLo, aHi, bLo, bHi, d, offset, forward, backward);
+            }
+        }
+        return new int[]{aHi, bHi, aHi, bHi};
+    }
+}
+
+public class Terminal {
+
+    private static final boolean INTERACTIVE = System.console() != null;
+
+    private final Parser parser = new Parser();
+    private final InputStream input = new BufferedInputStream(System.in);
+    private File currentDir;
+
+    public Terminal() {
+        try {
+            this.currentDir = new File(System.getProperty("user.dir")).getCanonicalFile();
+        } catch (Exception e) {
+            System.err.println("Failed to get current directory. Defaulting to user home.");
+            this.currentDir = new File(System.getProperty("user.home"));
+        }
+    }
+
+    public static void main(String[] args) {
+        Terminal terminal = new Terminal();
+        String input;
+
+        while (true) {
+            // Prompts are only shown on a terminal so that piped stdout carries command output alone.
+            if (INTERACTIVE) {
+                System.out.print(terminal.pwd());
+                System.out.print("> ");
+            }
+            try {
+                input = terminal.readLine();
+            } catch (IOException e) {
+                System.err.println("Failed to read input: " + e.getMessage());
+                break;
+            }
+            if (input == null) {
+                break;
+            }
+
+            if (terminal.parser.parse(input)) {
+                String commandName = terminal.parser.getCommandName();
+                String[] arguments = terminal.parser.getArgs();
+
+                if (commandName.equalsIgnoreCase("exit")) {
+                    if (INTERACTIVE) {
+                        System.out.println("Terminating!");
+                    }
+                    break;
+                } else {
+                    terminal.chooseCommandAction(commandName, arguments);
+                }
+            }
+        }
+    }
+
+    // Commands and any data a command reads from stdin share this one buffered stream, so
+    // nothing is read ahead past the current command line.
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = input.read()) >= 0 && b != '\n') {
+            line.write(b);
+        }
+        if (b < 0 && line.size() == 0) {
+            return null;
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    private File resolvePath(String path) {
+        File file = new File(path);
+        if (file.isAbsolute()) {
+            return file;
+        } else {
+            return new File(currentDir, path);
+        }
+    }
+
+    // Set -Dterminal.fsync=true to force redirected and copied output to disk before it is
+    // published; appends are then synced once per command instead of once per write.
+    private static final boolean FSYNC_WRITES = Boolean.getBoolean("terminal.fsync");
+
+    interface StreamWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    interface TempFileWriter {
+        void write(Path temp) throws IOException;
+    }
+
+    private void atomicWrite(Path target, StreamWriter writer) throws IOException {
+        atomicReplace(target, null, temp -> {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), ArchiveFormat.BUFFER_SIZE)) {
+                writer.write(out);
+            }
+        });
+    }
+
+    // Writes into a temp file next to the target and moves it into place, so readers only
+    // ever see the old content or the complete new content. The result takes its mode from
+    // modeSource when given (copies), else from the file it replaces, else the umask default.
+    // Symbolic links are written through; a file with other hard links is rewritten in place
+    // from the completed temp file, since a rename would detach it from its other names.
+    private void atomicReplace(Path target, Path modeSource, TempFileWriter writer) throws IOException {
+        target = resolveWriteTarget(target);
+        Path parent = target.getParent();
+        Path temp = createSiblingTemp(parent, target.getFileName().toString());
+        try {
+            writer.write(temp);
+            if (FSYNC_WRITES) {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+            }
+            if (hardLinkCount(target) > 1) {
+                try (FileChannel in = FileChannel.open(temp, StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    long size = in.size();
+                    for (long position = 0; position < size; ) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                    if (FSYNC_WRITES) {
+                        out.force(true);
+                    }
+                }
+                return;
+            }
+            copyPermissions(modeSource != null ? modeSource : target, temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (FSYNC_WRITES) {
+                syncDirectory(parent);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static Path resolveWriteTarget(Path target) throws IOException {
+        Path path = target.toAbsolutePath();
+        for (int hops = 0; Files.isSymbolicLink(path); hops++) {
+            if (hops == 40) {
+                throw new FileSystemException(target.toString(), null, "Too many levels of symbolic links");
+            }
+            path = path.resolveSibling(Files.readSymbolicLink(path));
+        }
+        return path.getParent().toRealPath().resolve(path.getFileName());
+    }
+
+    private static int hardLinkCount(Path path) {
+        try {
+            return (Integer) Files.getAttribute(path, "unix:nlink");
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return 1;
+        }
+    }
+
+    private void appendWrite(Path target, StreamWriter writer) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), ArchiveFormat.BUFFER_SIZE);
+            writer.write(out);
+            out.flush();
+            if (FSYNC_WRITES) {
+                channel.force(false);
+            }
+        }
+    }
+
+    // Unlike Files.createTempFile, which always uses 0600, createFile applies the process umask.
+    private static Path createSiblingTemp(Path parent, String name) throws IOException {
+        while (true) {
+            Path temp = parent.resolve("." + name + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+            try {
+                return Files.createFile(temp);
+            } catch (FileAlreadyExistsException ignored) {
+            }
+        }
+    }
+
+    private void copyPermissions(Path from, Path temp) {
+        if (!temp.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return;
+        }
+        try {
+            Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(from));
+        } catch (NoSuchFileException ignored) {
+        } catch (IOException e) {
+            System.err.println("Failed to copy permissions of " + from + ": " + e.getMessage());
+        }
+    }
+
+    private void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    public String pwd() {
+        return currentDir.getAbsolutePath();
+    }
+
+    public void cd(String[] args) {
+        File temp;
+        if (args.length == 0) {
+            temp = new File(System.getProperty("user.home"));
+        } else if (args.length == 1) {
+            temp = resolvePath(args[0]);
+        } else {
+            System.err.println("Invalid number of arguments for cd command.");
+            return;
+        }
+        if (temp.exists() && temp.isDirectory()) {
+            try {
+                currentDir = temp.getCanonicalFile();
+            } catch (Exception e) {
+                System.err.println("Failed to change directory to " + temp.getAbsolutePath());
+            }
+        } else {
+            System.err.println("Directory " + temp.getAbsolutePath() + " does not exist.");
+        }
+    }
+
+    public void ls(String[] args) {
+        if (!currentDir.exists() || !currentDir.isDirectory()) {
+            System.err.println("Directory " + currentDir.getAbsolutePath() + " does not exist or is not a directory.");
+            return;
+        }
+        File[] files = currentDir.listFiles();
+        if (files == null) {
+            System.err.println("Failed to list contents of " + currentDir.getAbsolutePath());
+            return;
+        }
+        if (args.length == 0) {
+            for (int i = 0; i < files.length; i++) {
+                System.out.println(i + 1 + "-" + files[i].getName() + (files[i].isDirectory() ? "\\" : "") + "\t");
+            }
+            System.out.println();
+        } else if (args.length == 2 && args[0].equals(">")) {
+            try {
+                File file2 = resolvePath(args[1]);
+                StringBuilder output = new StringBuilder();
+
+                for (int i = 0; i < files.length; i++) {
+                    output.append((i + 1)).append("-").append(files[i].getName()).append(files[i].isDirectory() ? "\\" : "").append("\n");
+                }
+
+                atomicWrite(file2.toPath(), out -> out.write(output.toString().getBytes()));
+                System.out.println("Directory content successfully written to " + file2.getName());
+            } catch (IOException e) {
+                System.out.println("Error writing to file: " + e.getMessage());
+            }
+        } else if ((args.length == 2 && args[0].equals(">>"))) {
+            try {
+                File file2 = resolvePath(args[1]);
+                StringBuilder output = new StringBuilder();
+
+                for (int i = 0; i < files.length; i++) {
+                    output.append((i + 1)).append("-").append(files[i].getName()).append(files[i].isDirectory() ? "\\" : "").append("\n");
+                }
+
+                appendWrite(file2.toPath(), out -> out.write(output.toString().getBytes()));
+                System.out.println("Directory content successfully written to " + file2.getName());
+            } catch (IOException e) {
+                System.out.println("Error writing to file: " + e.getMessage());
+            }
+        }
+    }
+
+    private void read(File file1) {
+        if (file1.exists()) {
+            Path filePath = Paths.get(file1.getAbsolutePath());
+            try {
+                List<String> lines = Files.readAllLines(filePath);
+
+                for (String line : lines) {
+                    System.out.println(line);
+                }
+            } catch (IOException e) {
+                System.out.println("Error reading file: " + e.getMessage());
+            }
+        } else {
+            System.out.println(" File does not exist: \n" + file1 + '\n');
+        }
+
+    }
+
+    private void readAndWrite(File InFile1, File File2, File File3, Boolean operator) {
+        if (!InFile1.exists() || (File3 != null && !File3.exists())) {
+            System.out.println(" File does not exist: \n" + (InFile1.exists() ? File3 : InFile1) + '\n');
+            return;
+        }
+        try {
+            List<String> lines = Files.readAllLines(Paths.get(InFile1.getAbsolutePath()));
+            List<String> lines2 = File3 == null ? List.of() : Files.readAllLines(Paths.get(File3.getAbsolutePath()));
+            StreamWriter content = out -> {
+                BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+                for (String line2 : lines2) {
+                    writer.write(line2);
+                    writer.newLine();
+                }
+                writer.flush();
+            };
+            if (operator) {
+                appendWrite(File2.toPath(), content);
+            } else {
+                atomicWrite(File2.toPath(), content);
+            }
+
+            System.out.println("File content successfully written to " + File2.getName());
+        } catch (IOException e) {
+            System.out.println("Error processing file: " + e.getMessage());
+        }
+    }
+
+    private int[] count(File file1) {
+        long lineCount = 0;
+        long wordCount = 0;
+        long charCount = 0;
+        Path filePath = Paths.get(file1.getAbsolutePath());
+        try (Stream<String> lines = Files.lines(filePath)) {
+            List<String> allLines = lines.toList();
+            lineCount = allLines.size();
+            wordCount = allLines.stream().flatMap(line -> java.util.Arrays.stream(line.trim().split("\\s+"))).filter(word -> !word.isEmpty()).count();
+            charCount = allLines.stream().mapToLong(String::length).sum();
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + e.getMessage());
+        }
+        return new int[]{(int) lineCount, (int) wordCount, (int) charCount};
+    }
+
+    public void cat(String[] args) {
+        if (args.length == 0) {
+            System.err.println("cat command requires one or 2 arguments.");
+            return;
+        }
+        if (args.length == 1) {
+            File file1 = resolvePath(args[0]);
+            read(file1);
+
+        } else if (args.length == 2) {
             File file1 = resolvePath(args[0]);
             File file2 = resolvePath(args[1]);
             read(file1);
@@ -323,48 +1257,801 @@ public class Terminal {
         }
     }
 
-    public void wc(String[] args) {
-
-        if (args.length == 0) {
-            System.err.println("too few arguments.");
-        } else if (args.length == 1) {
+    public void wc(String[] args) {
+
+        if (args.length == 0) {
+            System.err.println("too few arguments.");
+        } else if (args.length == 1) {
+
+            File file1 = resolvePath(args[0]);
+            int[] result = count(file1);
+
+            System.out.println(result[0] + " " + result[1] + " " + result[2] + " " + args[0]);
+        } else if (args.length == 3 && Objects.equals(args[1], ">")) {
+            File file1 = resolvePath(args[0]);
+
+            int[] result = count(file1);
+            File file2 = resolvePath(args[2]);
+
+            try {
+                String output = "Lines: " + result[0] + "\nWords: " + result[1] + "\nChars: " + result[2];
+
+                atomicWrite(file2.toPath(), out -> out.write(output.getBytes()));
+
+                System.out.println("File content successfully written to " + file2.getName());
+            } catch (IOException e) {
+                System.out.println("Error reading file: " + e.getMessage());
+            }
+        } else if (args.length == 3 && Objects.equals(args[1], ">>")) {
+            File file1 = resolvePath(args[0]);
+
+            int[] result = count(file1);
+            File file2 = resolvePath(args[2]);
+            try {
+                String output = "Lines: " + result[0] + "\nWords: " + result[1] + "\nChars: " + result[2];
+                appendWrite(file2.toPath(), out -> out.write(output.getBytes()));
+                System.out.println("File content successfully written to " + file2.getName());
+            } catch (IOException e) {
+                System.out.println("Error reading file: " + e.getMessage());
+            }
+        } else {
+            System.err.println("too many arguments.");
+        }
+
+
+    }
+
+    private static final int DEFAULT_LINE_COUNT = 10;
+    private static final int TAIL_BLOCK_SIZE = 8192;
+    private static final long FOLLOW_POLL_MILLIS = 500;
+
+    public void head(String[] args) {
+        int lines = DEFAULT_LINE_COUNT;
+        String path = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-n")) {
+                if (i + 1 == args.length) {
+                    System.err.println("Usage: head [-n N] <file>");
+                    return;
+                }
+                lines = parseLineCount(args[++i]);
+                if (lines < 0) {
+                    return;
+                }
+            } else if (path == null) {
+                path = args[i];
+            } else {
+                System.err.println("Usage: head [-n N] <file>");
+                return;
+            }
+        }
+        if (path == null) {
+            System.err.println("Usage: head [-n N] <file>");
+            return;
+        }
+        File file = resolvePath(path);
+        if (!file.isFile()) {
+            System.err.println("File " + file.getAbsolutePath() + " does not exist.");
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            writeRange(channel, 0, headOffset(channel, lines));
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + e.getMessage());
+        }
+    }
+
+    public void tail(String[] args) {
+        int lines = DEFAULT_LINE_COUNT;
+        boolean follow = false;
+        String path = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-n")) {
+                if (i + 1 == args.length) {
+                    System.err.println("Usage: tail [-n N] [-f] <file>");
+                    return;
+                }
+                lines = parseLineCount(args[++i]);
+                if (lines < 0) {
+                    return;
+                }
+            } else if (args[i].equals("-f")) {
+                follow = true;
+            } else if (path == null) {
+                path = args[i];
+            } else {
+                System.err.println("Usage: tail [-n N] [-f] <file>");
+                return;
+            }
+        }
+        if (path == null) {
+            System.err.println("Usage: tail [-n N] [-f] <file>");
+            return;
+        }
+        File file = resolvePath(path);
+        if (!file.isFile()) {
+            System.err.println("File " + file.getAbsolutePath() + " does not exist.");
+            return;
+        }
+        long position;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            writeRange(channel, tailOffset(channel, size, lines), size);
+            position = size;
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + e.getMessage());
+            return;
+        }
+        if (follow) {
+            follow(file.toPath(), position);
+        }
+    }
+
+    private int parseLineCount(String value) {
+        try {
+            int lines = Integer.parseInt(value);
+            if (lines >= 0) {
+                return lines;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        System.err.println("Invalid number of lines: " + value);
+        return -1;
+    }
+
+    // Returns the offset just past the Nth newline, so head copies bytes exactly as tail does.
+    private long headOffset(FileChannel channel, int lines) throws IOException {
+        long size = channel.size();
+        if (lines == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(TAIL_BLOCK_SIZE);
+        long blockStart = 0;
+        int newlines = 0;
+        while (blockStart < size) {
+            buffer.clear();
+            int read = channel.read(buffer, blockStart);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n' && ++newlines == lines) {
+                    return blockStart + i + 1;
+                }
+            }
+            blockStart += read;
+        }
+        return size;
+    }
+
+    // Scans backward from the end in fixed-size blocks, so the cost depends on the
+    // number of lines requested rather than on the size of the file.
+    private long tailOffset(FileChannel channel, long size, int lines) throws IOException {
+        if (lines == 0 || size == 0) {
+            return size;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(TAIL_BLOCK_SIZE);
+        long blockStart = size;
+        int newlines = 0;
+        while (blockStart > 0) {
+            int length = (int) Math.min(TAIL_BLOCK_SIZE, blockStart);
+            blockStart -= length;
+            buffer.clear().limit(length);
+            while (buffer.hasRemaining() && channel.read(buffer, blockStart + buffer.position()) >= 0) {
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                long offset = blockStart + i;
+                if (buffer.get(i) == '\n' && offset != size - 1 && ++newlines == lines) {
+                    return offset + 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private void writeRange(FileChannel channel, long from, long to) throws IOException {
+        WritableByteChannel out = Channels.newChannel(System.out);
+        while (from < to) {
+            long written = channel.transferTo(from, to - from, out);
+            if (written <= 0) {
+                break;
+            }
+            from += written;
+        }
+        System.out.flush();
+    }
+
+    private void follow(Path path, long position) {
+        System.out.println("Following " + path.getFileName() + " (press Enter to stop)");
+        WatchService watcher = null;
+        try {
+            watcher = path.getFileSystem().newWatchService();
+            path.toAbsolutePath().getParent().register(watcher,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        } catch (IOException | UnsupportedOperationException e) {
+            closeQuietly(watcher);
+            watcher = null;
+        }
+        try {
+            while (input.available() == 0) {
+                if (watcher != null) {
+                    WatchKey key = watcher.poll(FOLLOW_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        key.pollEvents();
+                        key.reset();
+                    }
+                } else {
+                    Thread.sleep(FOLLOW_POLL_MILLIS);
+                }
+                position = writeAppended(path, position);
+            }
+            // The pending line is the request to stop, not the next command.
+            readLine();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Stopped following " + path + ": " + e.getMessage());
+        } finally {
+            closeQuietly(watcher);
+        }
+    }
+
+    private long writeAppended(Path path, long position) throws IOException {
+        if (!Files.exists(path)) {
+            return position;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < position) {
+                System.err.println(path.getFileName() + ": file truncated");
+                position = 0;
+            }
+            writeRange(channel, position, size);
+            return size;
+        }
+    }
+
+    private void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static final long DEFAULT_SORT_MEMORY = Math.max(16L << 20, Runtime.getRuntime().maxMemory() / 4);
+    private static final int LINE_OVERHEAD_BYTES = 48;
+    private static final Pattern SORT_KEY = Pattern.compile("(\\d+)(?:,(\\d+))?");
+    private static final int MAX_MERGE_FAN_IN = 64;
+    private static final int MERGE_READER_CHARS = 8192;
+    // The char buffer plus the decoder's byte buffer held for every open run.
+    private static final long MERGE_READER_BYTES = 2L * MERGE_READER_CHARS + 8192;
+
+    public void sort(String[] args) {
+        boolean reverse = false;
+        boolean numeric = false;
+        boolean unique = false;
+        int keyField = 1;
+        int keyEndField = 0;
+        long memory = DEFAULT_SORT_MEMORY;
+        File tempDir = new File(System.getProperty("java.io.tmpdir"));
+        String input = null;
+        File output = null;
+        boolean append = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-r" -> reverse = true;
+                case "-n" -> numeric = true;
+                case "-u" -> unique = true;
+                case "-k", "-S", "-T", ">", ">>" -> {
+                    if (i + 1 == args.length) {
+                        System.err.println("Option " + args[i] + " requires an argument.");
+                        return;
+                    }
+                    String value = args[++i];
+                    if (args[i - 1].equals("-k")) {
+                        Matcher key = SORT_KEY.matcher(value);
+                        try {
+                            if (!key.matches()) {
+                                throw new NumberFormatException(value);
+                            }
+                            keyField = Integer.parseInt(key.group(1));
+                            keyEndField = key.group(2) == null ? 0 : Integer.parseInt(key.group(2));
+                        } catch (NumberFormatException e) {
+                            keyField = 0;
+                        }
+                        if (keyField < 1 || (keyEndField != 0 && keyEndField < keyField)) {
+                            System.err.println("Invalid sort key: " + value + ", expected N or N,M with M >= N >= 1.");
+                            return;
+                        }
+                    } else if (args[i - 1].equals("-S")) {
+                        memory = parseSize(value);
+                        if (memory <= 0) {
+                            System.err.println("Invalid memory size: " + value);
+                            return;
+                        }
+                    } else if (args[i - 1].equals("-T")) {
+                        tempDir = resolvePath(value);
+                    } else {
+                        output = resolvePath(value);
+                        append = args[i - 1].equals(">>");
+                    }
+                }
+                default -> {
+                    if (input != null) {
+                        System.err.println("Usage: sort [-r] [-n] [-u] [-k N[,M]] [-S size] [-T dir] <file> [> | >> <file>]");
+                        return;
+                    }
+                    input = args[i];
+                }
+            }
+        }
+        if (input == null) {
+            System.err.println("Usage: sort [-r] [-n] [-u] [-k N[,M]] [-S size] [-T dir] <file> [> | >> <file>]");
+            return;
+        }
+        File inFile = resolvePath(input);
+        if (!inFile.isFile()) {
+            System.err.println("File " + inFile.getAbsolutePath() + " does not exist.");
+            return;
+        }
+        if (!tempDir.isDirectory()) {
+            System.err.println("Temporary directory " + tempDir.getAbsolutePath() + " does not exist.");
+            return;
+        }
+
+        Comparator<String> comparator = sortComparator(keyField - 1, keyEndField, numeric);
+        // As in GNU sort, lines with equal keys fall back to a whole-line comparison (except
+        // with -u, where equal keys are duplicates), so ties never depend on how runs were split.
+        if (!unique) {
+            comparator = comparator.thenComparing(Comparator.naturalOrder());
+        }
+        if (reverse) {
+            comparator = comparator.reversed();
+        }
+        try {
+            externalSort(inFile.toPath(), output, append, tempDir.toPath(), memory, comparator, unique);
+            if (output != null) {
+                System.out.println("Sorted content successfully written to " + output.getName());
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to sort file: " + e.getMessage());
+        }
+    }
+
+    private static long parseSize(String value) {
+        long multiplier = 1;
+        char suffix = Character.toUpperCase(value.isEmpty() ? ' ' : value.charAt(value.length() - 1));
+        if (suffix == 'K' || suffix == 'M' || suffix == 'G') {
+            multiplier = suffix == 'K' ? 1L << 10 : suffix == 'M' ? 1L << 20 : 1L << 30;
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            return Long.parseLong(value) * multiplier;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Comparator<String> sortComparator(int keyIndex, int keyEndField, boolean numeric) {
+        if (numeric) {
+            return Comparator.comparingDouble(line -> numericPrefix(sortKey(line, keyIndex, keyEndField)));
+        }
+        return Comparator.comparing(line -> sortKey(line, keyIndex, keyEndField));
+    }
+
+    // The key runs from the blanks before field keyIndex + 1 to the end of field keyEndField,
+    // or to the end of the line when keyEndField is 0.
+    private static String sortKey(String line, int keyIndex, int keyEndField) {
+        int start = skipFields(line, 0, keyIndex);
+        int end = keyEndField == 0 ? line.length() : skipFields(line, start, keyEndField - keyIndex);
+        return start == 0 && end == line.length() ? line : line.substring(start, end);
+    }
+
+    private static int skipFields(String line, int position, int fields) {
+        for (int field = 0; field < fields; field++) {
+            while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+                position++;
+            }
+            while (position < line.length() && !Character.isWhitespace(line.charAt(position))) {
+                position++;
+            }
+        }
+        return position;
+    }
+
+    private static double numericPrefix(String key) {
+        int start = 0;
+        while (start < key.length() && Character.isWhitespace(key.charAt(start))) {
+            start++;
+        }
+        int end = start;
+        if (end < key.length() && (key.charAt(end) == '-' || key.charAt(end) == '+')) {
+            end++;
+        }
+        while (end < key.length() && (Character.isDigit(key.charAt(end)) || key.charAt(end) == '.')) {
+            end++;
+        }
+        try {
+            return Double.parseDouble(key.substring(start, end));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Splits the input into runs bounded by the memory budget, sorts and spills them
+    // concurrently, then merges the spilled runs with a heap. At most one run per worker
+    // plus the one being filled are held in memory at a time.
+    private void externalSort(Path input, File output, boolean append, Path tempDir, long memory,
+                              Comparator<String> comparator, boolean unique) throws IOException {
+        int workers = Runtime.getRuntime().availableProcessors();
+        long runBudget = Math.max(1L << 20, memory / (workers + 1));
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<Path>> runs = new ArrayList<>();
+        List<Path> runFiles = new ArrayList<>();
+        try {
+            try (BufferedReader reader = Files.newBufferedReader(input)) {
+                List<String> chunk = new ArrayList<>();
+                long chunkBytes = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    chunk.add(line);
+                    chunkBytes += 2L * line.length() + LINE_OVERHEAD_BYTES;
+                    if (chunkBytes >= runBudget) {
+                        awaitRuns(runs, runFiles, workers - 1);
+                        runs.add(spillRun(executor, chunk, tempDir, comparator, unique));
+                        chunk = new ArrayList<>();
+                        chunkBytes = 0;
+                    }
+                }
+                if (runs.isEmpty()) {
+                    chunk.sort(comparator);
+                    List<String> sorted = chunk;
+                    writeSortOutput(output, append, writer -> writeSorted(sorted, writer, comparator, unique));
+                    return;
+                }
+                if (!chunk.isEmpty()) {
+                    runs.add(spillRun(executor, chunk, tempDir, comparator, unique));
+                }
+            }
+            awaitRuns(runs, runFiles, 0);
+            List<Path> finalRuns = mergePasses(new ArrayList<>(runFiles), runFiles, tempDir, memory, comparator, unique);
+            writeSortOutput(output, append, writer -> mergeRuns(finalRuns, writer, comparator, unique));
+        } finally {
+            // Spills that finished but were never collected still own temp files; wait for the
+            // interrupted workers so every run that reached -T is known before deleting.
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (Future<Path> run : runs) {
+                if (run.isDone() && !run.isCancelled()) {
+                    try {
+                        runFiles.add(run.get());
+                    } catch (ExecutionException | InterruptedException ignored) {
+                    }
+                }
+            }
+            for (Path runFile : runFiles) {
+                try {
+                    Files.deleteIfExists(runFile);
+                } catch (IOException e) {
+                    System.err.println("Failed to delete temporary file " + runFile + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Merges runs in groups of at most the fan-in until one final merge can take them all. The
+    // fan-in is bounded by MAX_MERGE_FAN_IN and by how many reader buffers fit in the budget.
+    private List<Path> mergePasses(List<Path> pending, List<Path> tempFiles, Path tempDir, long memory,
+                                   Comparator<String> comparator, boolean unique) throws IOException {
+        int fanIn = (int) Math.max(2, Math.min(MAX_MERGE_FAN_IN, memory / MERGE_READER_BYTES));
+        while (pending.size() > fanIn) {
+            List<Path> merged = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i += fanIn) {
+                List<Path> group = pending.subList(i, Math.min(i + fanIn, pending.size()));
+                if (group.size() == 1) {
+                    merged.add(group.get(0));
+                    continue;
+                }
+                Path runFile = Files.createTempFile(tempDir, "sort", ".run");
+                tempFiles.add(runFile);
+                merged.add(runFile);
+                try (BufferedWriter writer = Files.newBufferedWriter(runFile)) {
+                    mergeRuns(group, writer, comparator, unique);
+                }
+                for (Path run : group) {
+                    Files.deleteIfExists(run);
+                }
+            }
+            pending = merged;
+        }
+        return pending;
+    }
+
+    private Future<Path> spillRun(ExecutorService executor, List<String> chunk, Path tempDir,
+                                  Comparator<String> comparator, boolean unique) {
+        return executor.submit(() -> {
+            chunk.sort(comparator);
+            Path runFile = Files.createTempFile(tempDir, "sort", ".run");
+            try (BufferedWriter writer = Files.newBufferedWriter(runFile)) {
+                writeSorted(chunk, writer, comparator, unique);
+            } catch (IOException e) {
+                Files.deleteIfExists(runFile);
+                throw e;
+            }
+            return runFile;
+        });
+    }
+
+    private void awaitRuns(List<Future<Path>> runs, List<Path> runFiles, int maxPending) throws IOException {
+        while (runs.size() > maxPending) {
+            try {
+                runFiles.add(runs.remove(0).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Sort interrupted.");
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            }
+        }
+    }
+
+    interface SortedWriter {
+        void write(BufferedWriter writer) throws IOException;
+    }
+
+    private void writeSortOutput(File output, boolean append, SortedWriter body) throws IOException {
+        StreamWriter content = out -> {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            body.write(writer);
+            writer.flush();
+        };
+        if (output == null) {
+            content.write(System.out);
+            System.out.flush();
+        } else if (append) {
+            appendWrite(output.toPath(), content);
+        } else {
+            atomicWrite(output.toPath(), content);
+        }
+    }
+
+    private static void writeSorted(List<String> lines, BufferedWriter writer, Comparator<String> comparator,
+                                    boolean unique) throws IOException {
+        String previous = null;
+        for (String line : lines) {
+            if (unique && previous != null && comparator.compare(previous, line) == 0) {
+                continue;
+            }
+            writer.write(line);
+            writer.newLine();
+            previous = line;
+        }
+    }
+
+    private static final class RunReader {
+        private final BufferedReader reader;
+        private final int index;
+        private String current;
+
+        RunReader(BufferedReader reader, int index) throws IOException {
+            this.reader = reader;
+            this.index = index;
+            this.current = reader.readLine();
+        }
+
+        boolean advance() throws IOException {
+            current = reader.readLine();
+            return current != null;
+        }
+    }
+
+    private void mergeRuns(List<Path> runFiles, BufferedWriter writer, Comparator<String> comparator,
+                           boolean unique) throws IOException {
+        // Runs are in input order, so breaking ties by run index keeps the merge stable.
+        PriorityQueue<RunReader> heap = new PriorityQueue<>(runFiles.size(),
+                Comparator.<RunReader, String>comparing(run -> run.current, comparator).thenComparingInt(run -> run.index));
+        List<BufferedReader> readers = new ArrayList<>();
+        try {
+            for (Path runFile : runFiles) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(runFile),
+                        StandardCharsets.UTF_8), MERGE_READER_CHARS);
+                readers.add(reader);
+                RunReader run = new RunReader(reader, readers.size());
+                if (run.current != null) {
+                    heap.add(run);
+                }
+            }
+            String previous = null;
+            while (!heap.isEmpty()) {
+                RunReader run = heap.poll();
+                String line = run.current;
+                if (!unique || previous == null || comparator.compare(previous, line) != 0) {
+                    writer.write(line);
+                    writer.newLine();
+                    previous = line;
+                }
+                if (run.advance()) {
+                    heap.add(run);
+                }
+            }
+        } finally {
+            for (BufferedReader reader : readers) {
+                closeQuietly(reader);
+            }
+        }
+    }
+
+    private static final Pattern BRACE_RANGE = Pattern.compile("(-?\\d+|[a-zA-Z])\\.\\.(-?\\d+|[a-zA-Z])(?:\\.\\.(-?\\d+))?");
+
+    // Applies brace expansion and then glob expansion to every non-option argument, the way
+    // a shell would before invoking the command. Each glob is one PathMatcher pass over a
+    // single directory listing; a glob without matches is passed through literally.
+    private List<String> expandArgs(String[] args) {
+        List<String> expanded = new ArrayList<>();
+        List<String> words = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("-")) {
+                expanded.add(arg);
+                continue;
+            }
+            words.clear();
+            expandBraces(arg, words);
+            for (String word : words) {
+                expandGlob(word, expanded);
+            }
+        }
+        return expanded;
+    }
 
-            File file1 = resolvePath(args[0]);
-            int[] result = count(file1);
+    private static void expandBraces(String word, List<String> out) {
+        int open = -1;
+        int depth = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c == '{' && depth++ == 0) {
+                open = i;
+            } else if (c == '}' && depth > 0 && --depth == 0) {
+                String prefix = word.substring(0, open);
+                String body = word.substring(open + 1, i);
+                String suffix = word.substring(i + 1);
+                List<String> alternatives = splitAlternatives(body);
+                if (alternatives.size() > 1) {
+                    for (String alternative : alternatives) {
+                        expandBraces(prefix + alternative + suffix, out);
+                    }
+                    return;
+                }
+                Matcher range = BRACE_RANGE.matcher(body);
+                if (range.matches()) {
+                    for (String value : expandRange(range)) {
+                        expandBraces(prefix + value + suffix, out);
+                    }
+                    return;
+                }
+            }
+        }
+        out.add(word);
+    }
 
-            System.out.println(result[0] + " " + result[1] + " " + result[2] + " " + args[0]);
-        } else if (args.length == 3 && Objects.equals(args[1], ">")) {
-            File file1 = resolvePath(args[0]);
+    private static List<String> splitAlternatives(String body) {
+        List<String> alternatives = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                alternatives.add(body.substring(start, i));
+                start = i + 1;
+            }
+        }
+        alternatives.add(body.substring(start));
+        return alternatives;
+    }
 
-            int[] result = count(file1);
-            File file2 = resolvePath(args[2]);
+    private static List<String> expandRange(Matcher range) {
+        String from = range.group(1);
+        String to = range.group(2);
+        int step = range.group(3) == null ? 1 : Math.abs(Integer.parseInt(range.group(3)));
+        List<String> values = new ArrayList<>();
+        boolean numeric = Character.isDigit(from.charAt(from.length() - 1));
+        if (numeric != Character.isDigit(to.charAt(to.length() - 1)) || step == 0) {
+            values.add("{" + range.group() + "}");
+            return values;
+        }
+        long start = numeric ? Long.parseLong(from) : from.charAt(0);
+        long end = numeric ? Long.parseLong(to) : to.charAt(0);
+        int width = numeric && (hasLeadingZero(from) || hasLeadingZero(to)) ? Math.max(from.length(), to.length()) : 0;
+        long direction = start <= end ? step : -step;
+        for (long value = start; direction > 0 ? value <= end : value >= end; value += direction) {
+            if (!numeric) {
+                values.add(String.valueOf((char) value));
+            } else if (width > 0) {
+                values.add(value < 0 ? "-" + zeroPad(-value, width - 1) : zeroPad(value, width));
+            } else {
+                values.add(Long.toString(value));
+            }
+        }
+        return values;
+    }
 
-            try {
-                String output = "Lines: " + result[0] + "\nWords: " + result[1] + "\nChars: " + result[2];
+    private static boolean hasLeadingZero(String number) {
+        String digits = number.startsWith("-") ? number.substring(1) : number;
+        return digits.length() > 1 && digits.charAt(0) == '0';
+    }
 
-                Files.write(file2.toPath(), output.getBytes());
+    private static String zeroPad(long value, int width) {
+        String digits = Long.toString(value);
+        return digits.length() >= width ? digits : "0".repeat(width - digits.length()) + digits;
+    }
 
-                System.out.println("File content successfully written to " + file2.getName());
-            } catch (IOException e) {
-                System.out.println("Error reading file: " + e.getMessage());
-            }
-        } else if (args.length == 3 && Objects.equals(args[1], ">>")) {
-            File file1 = resolvePath(args[0]);
+    private static boolean containsGlob(String word) {
+        return word.indexOf('*') >= 0 || word.indexOf('?') >= 0 || word.indexOf('[') >= 0;
+    }
 
-            int[] result = count(file1);
-            File file2 = resolvePath(args[2]);
-            try {
-                String output = "Lines: " + result[0] + "\nWords: " + result[1] + "\nChars: " + result[2];
-                Files.write(file2.toPath(), output.getBytes(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-                System.out.println("File content successfully written to " + file2.getName());
-            } catch (IOException e) {
-                System.out.println("Error reading file: " + e.getMessage());
+    private void expandGlob(String word, List<String> out) {
+        if (!containsGlob(word)) {
+            out.add(word);
+            return;
+        }
+        int slash = Math.max(word.lastIndexOf('/'), word.lastIndexOf(File.separatorChar));
+        String dirPart = word.substring(0, slash + 1);
+        String pattern = word.substring(slash + 1);
+        if (containsGlob(dirPart) || pattern.isEmpty()) {
+            out.add(word);
+            return;
+        }
+        File dir = dirPart.isEmpty() ? currentDir : resolvePath(dirPart);
+        PathMatcher matcher = dir.toPath().getFileSystem().getPathMatcher("glob:" + pattern);
+        boolean matchHidden = pattern.startsWith(".");
+        List<String> matches = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir.toPath())) {
+            for (Path entry : entries) {
+                Path name = entry.getFileName();
+                if ((matchHidden || !name.toString().startsWith(".")) && matcher.matches(name)) {
+                    matches.add(dirPart + name);
+                }
             }
+        } catch (IOException | DirectoryIteratorException ignored) {
+        }
+        if (matches.isEmpty()) {
+            out.add(word);
         } else {
-            System.err.println("too many arguments.");
+            Collections.sort(matches);
+            out.addAll(matches);
         }
+    }
 
+    // Bulk operations are independent per path, so they run on the common pool. Each one
+    // relies on the exception of a single file system call instead of probing first.
+    private static void forEachParallel(List<Path> paths, Consumer<Path> action) {
+        if (paths.size() < 2) {
+            paths.forEach(action);
+        } else {
+            paths.parallelStream().forEach(action);
+        }
+    }
 
+    // Paths at the same depth cannot contain one another, so each depth runs in parallel while
+    // the depths themselves run in order: parents first for creation, children first for removal.
+    private static void forEachByDepth(List<Path> paths, boolean parentsFirst, Consumer<Path> action) {
+        TreeMap<Integer, List<Path>> byDepth = new TreeMap<>();
+        for (Path path : paths) {
+            byDepth.computeIfAbsent(path.toAbsolutePath().normalize().getNameCount(), depth -> new ArrayList<>()).add(path);
+        }
+        for (List<Path> group : parentsFirst ? byDepth.values() : byDepth.descendingMap().values()) {
+            forEachParallel(group, action);
+        }
     }
 
     public void mkdir(String[] args) {
@@ -373,96 +2060,96 @@ public class Terminal {
             return;
         }
 
-        File destPath = resolvePath(args[args.length - 1]);
-        boolean lastArgIsPath = args.length > 1 && (args[args.length - 1].contains(File.separator) ||
-                args[args.length - 1].contains("/") ||
-                new File(args[args.length - 1]).isAbsolute());
+        // Decided on the raw argument: a brace or glob pattern names directories to create,
+        // never a single destination, even when it contains a slash.
+        String last = args[args.length - 1];
+        boolean lastArgIsPath = args.length > 1 && (last.contains(File.separator) ||
+                last.contains("/") ||
+                new File(last).isAbsolute()) &&
+                !containsGlob(last) && last.indexOf('{') < 0;
+        List<Path> dirs = new ArrayList<>();
         if (lastArgIsPath) {
-            for (int i = 0; i < args.length - 1; i++) {
-                String dir = new File(args[i]).getName();
-                File temp = new File(destPath, dir);
-
-                if (temp.exists()) {
-                    System.err.println("Directory " + temp.getAbsolutePath() + " already exists.");
-                } else {
-                    try {
-                        Files.createDirectories(temp.toPath());
-                    } catch (Exception e) {
-                        System.err.println("Failed to create directory " + temp.getAbsolutePath() + ": " + e.getMessage());
-                    }
-                }
+            File destPath = resolvePath(last);
+            for (String name : expandArgs(Arrays.copyOf(args, args.length - 1))) {
+                dirs.add(new File(destPath, new File(name).getName()).toPath());
             }
         } else {
-            for (String dir : args) {
-                File temp = resolvePath(dir);
-
-                if (temp.exists()) {
-                    System.err.println("Directory " + temp.getAbsolutePath() + " already exists.");
-                } else {
-                    try {
-                        Files.createDirectories(temp.toPath());
-                    } catch (Exception e) {
-                        System.err.println("Failed to create directory " + temp.getAbsolutePath() + ": " + e.getMessage());
-                    }
-                }
+            for (String dir : expandArgs(args)) {
+                dirs.add(resolvePath(dir).toPath());
             }
         }
+        forEachByDepth(dirs, true, dir -> {
+            try {
+                Files.createDirectory(dir);
+            } catch (FileAlreadyExistsException e) {
+                System.err.println("Directory " + dir.toAbsolutePath() + " already exists.");
+            } catch (NoSuchFileException e) {
+                try {
+                    Files.createDirectories(dir);
+                } catch (IOException ex) {
+                    System.err.println("Failed to create directory " + dir.toAbsolutePath() + ": " + ex.getMessage());
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to create directory " + dir.toAbsolutePath() + ": " + e.getMessage());
+            }
+        });
     }
 
     public void rmdir(String[] args) {
-        if (args.length == 0) {
+        List<String> names = expandArgs(args);
+        if (names.isEmpty()) {
             System.err.println("rmdir command requires a directory name.");
             return;
         }
-        if (args.length == 1 && args[0].equals("*") && currentDir.list() != null) {
-            for (File file : requireNonNull(currentDir.listFiles())) {
-                if (file.isDirectory() && requireNonNull(file.list()).length == 0) {
-                    try {
-                        Files.deleteIfExists(file.toPath());
-                    } catch (Exception e) {
-                        System.err.println("Failed to delete directory " + file.getAbsolutePath() + ": " + e.getMessage());
-                        return;
-                    }
-                }
-            }
-        } else {
-            for (String dir : args) {
-                File temp = resolvePath(dir);
-                if (!temp.exists()) {
-                    System.err.println("Directory " + temp.getAbsolutePath() + " does not exist.");
-                } else if (!temp.isDirectory()) {
-                    System.err.println("File " + temp.getAbsolutePath() + " is not a directory.");
-                } else {
-                    try {
-                        Files.deleteIfExists(temp.toPath());
-                    } catch (DirectoryNotEmptyException e) {
-                        System.err.println("Failed to delete directory " + temp.getAbsolutePath() + ": " + "Directory is not empty.");
-                    } catch (IOException e) {
-                        System.err.println("Failed to delete directory " + temp.getAbsolutePath() + ": " + e.getMessage());
-                    }
+        List<Path> dirs = new ArrayList<>(names.size());
+        for (String dir : names) {
+            dirs.add(resolvePath(dir).toPath());
+        }
+        forEachByDepth(dirs, false, dir -> {
+            try {
+                if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+                    System.err.println((Files.exists(dir, LinkOption.NOFOLLOW_LINKS) ? "File " + dir.toAbsolutePath() + " is not a directory."
+                            : "Directory " + dir.toAbsolutePath() + " does not exist."));
+                    return;
                 }
+                Files.delete(dir);
+            } catch (NoSuchFileException e) {
+                System.err.println("Directory " + dir.toAbsolutePath() + " does not exist.");
+            } catch (DirectoryNotEmptyException e) {
+                System.err.println("Failed to delete directory " + dir.toAbsolutePath() + ": " + "Directory is not empty.");
+            } catch (IOException e) {
+                System.err.println("Failed to delete directory " + dir.toAbsolutePath() + ": " + e.getMessage());
             }
-        }
+        });
     }
 
     public void touch(String[] args) {
-        if (args.length == 0) {
+        List<String> names = expandArgs(args);
+        if (names.isEmpty()) {
             System.err.println("touch command requires at least one path.");
+            return;
         }
-        for (String path : args) {
-            File temp = resolvePath(path);
-
-            if (temp.exists()) {
-                if (temp.isDirectory()) {
-                    System.err.println("Cannot create directory " + temp.getAbsolutePath() + "using 'touch'. Please use 'mkdir'.");
-                }
-            }
+        List<Path> files = new ArrayList<>(names.size());
+        for (String path : names) {
+            files.add(resolvePath(path).toPath());
+        }
+        forEachParallel(files, file -> {
             try {
-                Files.createFile(temp.toPath());
+                Files.createFile(file);
+            } catch (FileAlreadyExistsException e) {
+                if (Files.isDirectory(file)) {
+                    System.err.println("Cannot create directory " + file.toAbsolutePath() + " using 'touch'. Please use 'mkdir'.");
+                    return;
+                }
+                try {
+                    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                } catch (IOException ex) {
+                    System.err.println("Failed to update file " + file.toAbsolutePath() + ": " + ex.getMessage());
+                }
             } catch (Exception e) {
-                System.err.println("Failed to create file " + temp.getAbsolutePath() + ": " + e.getMessage());
+                System.err.println("Failed to create file " + file.toAbsolutePath() + ": " + e.getMessage());
             }
-        }
+        });
     }
 
     public void rm(String[] args) {
@@ -470,50 +2157,49 @@ public class Terminal {
             System.err.println("rm command requires a file name.");
             return;
         }
-        if (args[0].equals("-d") || args[0].equals("--directory")) {
-            for (int i = 1; i < args.length; i++) {
-                File temp = resolvePath(args[i]);
-                if (!temp.exists()) {
-                    System.err.println("File " + temp.getAbsolutePath() + " does not exist.");
-                } else if (!temp.isDirectory()) {
-                    System.err.println("Directory " + temp.getAbsolutePath() + " is not a directory.");
-                } else if (requireNonNull(temp.listFiles()).length != 0) {
-                    System.err.println("Directory " + temp.getAbsolutePath() + " is not empty.");
-                }
-                try {
-                    Files.delete(temp.toPath());
-                } catch (Exception e) {
-                    System.err.println("Failed to delete file " + temp.getAbsolutePath() + ": " + e.getMessage());
+        boolean directories = args[0].equals("-d") || args[0].equals("--directory");
+        boolean recursive = args[0].equals("-r");
+        List<String> names = expandArgs(directories || recursive ? Arrays.copyOfRange(args, 1, args.length) : args);
+        List<Path> paths = new ArrayList<>(names.size());
+        for (String path : names) {
+            paths.add(resolvePath(path).toPath());
+        }
+        forEachByDepth(paths, false, path -> {
+            try {
+                if (directories && !Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS) && Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+                    System.err.println("Directory " + path.toAbsolutePath() + " is not a directory.");
+                } else if (recursive) {
+                    deleteRecursively(path);
+                } else {
+                    Files.delete(path);
                 }
+            } catch (NoSuchFileException e) {
+                System.err.println("File " + path.toAbsolutePath() + " does not exist.");
+            } catch (DirectoryNotEmptyException e) {
+                System.err.println("Directory " + path.toAbsolutePath() + " is not empty.");
+            } catch (Exception e) {
+                System.err.println("Failed to delete file " + path.toAbsolutePath() + ": " + e.getMessage());
             }
-        } else if (args[0].equals("-r")) {
-            for (int i = 1; i < args.length; i++) {
-                File temp = resolvePath(args[i]);
-                if (!temp.exists()) {
-                    System.err.println("File " + temp.getAbsolutePath() + " does not exist.");
-                } else if (!temp.isDirectory()) {
-                    System.err.println("Directory " + temp.getAbsolutePath() + " is not a directory.");
-                }
-                try {
-                    Files.deleteIfExists(temp.toPath());
-                } catch (Exception e) {
-                    System.err.println("Failed to delete file " + temp.getAbsolutePath() + ": " + e.getMessage());
-                }
+        });
+    }
+
+    private void deleteRecursively(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
             }
-        } else {
-            for (String path : args) {
-                File temp = resolvePath(path);
-                if (!temp.exists()) {
-                    System.err.println("File " + temp.getAbsolutePath() + " does not exist.");
-                } else {
-                    try {
-                        Files.deleteIfExists(temp.toPath());
-                    } catch (Exception e) {
-                        System.err.println("Failed to delete file " + temp.getAbsolutePath() + ": " + e.getMessage());
-                    }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
                 }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
             }
-        }
+        });
     }
 
     public void cp(String[] args) {
@@ -547,7 +2233,7 @@ public class Terminal {
                                 System.err.println("Failed to create directory: " + target.getAbsolutePath());
                             }
                         } else {
-                            Files.copy(sourcePath, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                            atomicReplace(target.toPath(), sourcePath, temp -> Files.copy(sourcePath, temp, StandardCopyOption.REPLACE_EXISTING));
                         }
                     } catch (Exception e) {
                         System.err.println("Failed to copy: " + sourcePath + " -> " + e.getMessage());
@@ -575,7 +2261,11 @@ public class Terminal {
                 return;
             }
             try {
-                Files.copy(src.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                if (src.length() >= CP_PARALLEL_THRESHOLD) {
+                    atomicReplace(dest.toPath(), src.toPath(), temp -> parallelCopy(src.toPath(), temp));
+                } else {
+                    atomicReplace(dest.toPath(), src.toPath(), temp -> Files.copy(src.toPath(), temp, StandardCopyOption.REPLACE_EXISTING));
+                }
                 System.out.println("File copied successfully.");
             } catch (Exception e) {
                 System.err.println("Failed to copy file: " + e.getMessage());
@@ -584,127 +2274,280 @@ public class Terminal {
         }
     }
 
-    private void addToZip(File file, String path, ZipOutputStream zipOutputStream) throws Exception {
-        String zipPath = path + file.getName();
+    // Files at or above the threshold are copied as fixed-size chunks on a thread pool. All three
+    // can be tuned, e.g. -Dterminal.cp.threshold=1G -Dterminal.cp.chunk=128M -Dterminal.cp.threads=16.
+    private static final long CP_PARALLEL_THRESHOLD = sizeProperty("terminal.cp.threshold", 256L << 20);
+    private static final long CP_CHUNK_SIZE = Math.max(1, sizeProperty("terminal.cp.chunk", 64L << 20));
+    private static final int CP_THREADS = Math.max(1, Integer.getInteger("terminal.cp.threads",
+            Runtime.getRuntime().availableProcessors()));
+    private static final int COPY_BUFFER_SIZE = 1 << 20;
+    private static final long PROGRESS_MILLIS = 500;
+
+    private static long sizeProperty(String name, long defaultValue) {
+        String value = System.getProperty(name);
+        long size = value == null ? -1 : parseSize(value);
+        return size >= 0 ? size : defaultValue;
+    }
+
+    // Checks free space up front and extends the target to the full size (Java has no portable
+    // fallocate, so this reserves no blocks), copies every chunk with positional reads and writes
+    // while checksumming it, then reads the target back and checks each chunk's CRC32.
+    private void parallelCopy(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long usable = Files.getFileStore(target).getUsableSpace();
+            if (usable < size) {
+                throw new IOException("Not enough space: " + size + " bytes needed, " + usable + " available.");
+            }
+            if (size > 0) {
+                out.write(ByteBuffer.wrap(new byte[1]), size - 1);
+            }
+            int chunks = (int) ((size + CP_CHUNK_SIZE - 1) / CP_CHUNK_SIZE);
+            long[] checksums = new long[chunks];
+            AtomicLong copied = new AtomicLong();
+            AtomicLong verified = new AtomicLong();
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(CP_THREADS, chunks)));
+            try {
+                List<Future<?>> tasks = new ArrayList<>(chunks);
+                for (int i = 0; i < chunks; i++) {
+                    int chunk = i;
+                    long position = chunk * CP_CHUNK_SIZE;
+                    long length = Math.min(CP_CHUNK_SIZE, size - position);
+                    tasks.add(executor.submit(() -> {
+                        checksums[chunk] = copyChunk(in, out, position, length, copied);
+                        return null;
+                    }));
+                }
+                awaitWithProgress(tasks, copied, size, "Copied");
+
+                tasks.clear();
+                for (int i = 0; i < chunks; i++) {
+                    int chunk = i;
+                    long position = chunk * CP_CHUNK_SIZE;
+                    long length = Math.min(CP_CHUNK_SIZE, size - position);
+                    tasks.add(executor.submit(() -> {
+                        if (copyChunk(out, null, position, length, verified) != checksums[chunk]) {
+                            throw new IOException("Checksum mismatch in chunk " + chunk + " at offset " + position + ".");
+                        }
+                        return null;
+                    }));
+                }
+                awaitWithProgress(tasks, verified, size, "Verified");
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    // Reads [position, position + length) from in, writing it to the same range of out when
+    // out is not null, and returns the CRC32 of the bytes read.
+    private static long copyChunk(FileChannel in, FileChannel out, long position, long length,
+                                  AtomicLong progress) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(COPY_BUFFER_SIZE, Math.max(1, length)));
+        CRC32 crc = new CRC32();
+        long end = position + length;
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = in.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("File shrank while copying.");
+            }
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            if (out != null) {
+                long writePosition = position;
+                while (buffer.hasRemaining()) {
+                    writePosition += out.write(buffer, writePosition);
+                }
+            }
+            position += read;
+            progress.addAndGet(read);
+        }
+        return crc.getValue();
+    }
+
+    private void awaitWithProgress(List<Future<?>> tasks, AtomicLong done, long total, String label) throws IOException {
+        try {
+            for (Future<?> task : tasks) {
+                while (true) {
+                    try {
+                        task.get(PROGRESS_MILLIS, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException e) {
+                        printProgress(label, done.get(), total);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Copy interrupted.");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+        printProgress(label, total, total);
+        System.out.println();
+    }
+
+    private void printProgress(String label, long done, long total) {
+        long percent = total == 0 ? 100 : done * 100 / total;
+        System.out.print("\r" + label + " " + (done >> 20) + " / " + (total >> 20) + " MB (" + percent + "%)");
+        System.out.flush();
+    }
+
+    private void addToArchive(File file, String path, ArchiveWriter archive) throws IOException {
+        String entryPath = path + file.getName();
         if (file.isDirectory()) {
-            if (!zipPath.endsWith("/")) {
-                zipPath += "/";
+            if (!entryPath.endsWith("/")) {
+                entryPath += "/";
             }
-            zipOutputStream.putNextEntry(new ZipEntry(zipPath));
-            zipOutputStream.closeEntry();
+            archive.putDirectory(entryPath);
 
             File[] children = file.listFiles();
             if (children != null) {
                 for (File child : children) {
-                    addToZip(child, zipPath, zipOutputStream);
+                    addToArchive(child, entryPath, archive);
                 }
             }
         } else {
-            zipOutputStream.putNextEntry(new ZipEntry(zipPath));
-            try (FileInputStream fis = new FileInputStream(file)) {
-                byte[] bytes = new byte[1024];
-                int length;
-                while ((length = fis.read(bytes)) > 0) {
-                    zipOutputStream.write(bytes, 0, length);
-                }
-            }
-            zipOutputStream.closeEntry();
+            archive.putFile(entryPath, file);
         }
     }
 
-    public void zip(String[] args) {
+    private static OutputStream standardOutput() {
+        return new FilterOutputStream(System.out) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
 
-        if (!(args[0].equals("-r"))) {
-            if (args.length < 2) {
-                System.err.println("zip command requires at least two arguments (destination and file(s) to zip).");
-                return;
+            @Override
+            public void close() {
+                System.out.flush();
             }
+        };
+    }
 
-            for (int i = 1; i < args.length; i++) {
-                File file = resolvePath(args[i]);
-                if (!file.exists()) {
-                    System.err.println("File " + file.getAbsolutePath() + " does not exist.");
-                    return;
-                }
-                if (file.isDirectory()) {
-                    System.err.println("File " + file.getAbsolutePath() + " is a directory, use zip -r");
-                    return;
-                }
+    private InputStream standardInput() {
+        return new FilterInputStream(input) {
+            @Override
+            public void close() {
             }
+        };
+    }
 
-            File destFile = resolvePath(args[0]);
-            try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(destFile))) {
-                for (int i = 1; i < args.length; i++) {
-                    File file = resolvePath(args[i]);
-                    addToZip(file, "", zipOutputStream);
+    public void zip(String[] args) {
+        boolean recursive = false;
+        ArchiveFormat format = null;
+        int start = 0;
+        while (start < args.length && args[start].startsWith("-") && !args[start].equals("-")) {
+            if (args[start].equals("-r")) {
+                recursive = true;
+                start++;
+            } else if (args[start].equals("-t") && start + 1 < args.length) {
+                format = ArchiveFormat.fromFlag(args[start + 1]);
+                if (format == null) {
+                    System.err.println("Unknown archive format " + args[start + 1] + ", expected zip, tar or tgz.");
+                    return;
                 }
-                System.out.println("Archive created successfully: " + destFile.getName());
-            } catch (Exception e) {
-                System.err.println("Failed to zip file: " + e.getMessage());
-            }
-        } else {
-            if (args.length < 3) {
-                System.err.println("zip -r command requires at least three arguments.");
+                start += 2;
+            } else {
+                System.err.println("Usage: zip [-r] [-t zip|tar|tgz] <archive|-> <file(s)>");
                 return;
             }
+        }
 
-            File sourceDir = resolvePath(args[2]);
-            if (!sourceDir.exists()) {
-                System.err.println("Directory " + sourceDir.getAbsolutePath() + " does not exist.");
+        if (args.length - start < 2) {
+            System.err.println(recursive
+                    ? "zip -r command requires at least three arguments."
+                    : "zip command requires at least two arguments (destination and file(s) to zip).");
+            return;
+        }
+        for (int i = start + 1; i < args.length; i++) {
+            File file = resolvePath(args[i]);
+            if (!file.exists()) {
+                System.err.println("File " + file.getAbsolutePath() + " does not exist.");
                 return;
             }
-            if (!sourceDir.isDirectory()) {
-                System.err.println(sourceDir.getAbsolutePath() + " is not a directory, use regular zip");
+            if (recursive && !file.isDirectory()) {
+                System.err.println(file.getAbsolutePath() + " is not a directory, use regular zip");
                 return;
             }
+            if (!recursive && file.isDirectory()) {
+                System.err.println("File " + file.getAbsolutePath() + " is a directory, use zip -r");
+                return;
+            }
+        }
 
-            File destZip = resolvePath(args[1]);
-            try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(destZip))) {
-
-                addToZip(sourceDir, sourceDir.getName(), zipOutputStream);
-
-                System.out.println("Archive created successfully: " + destZip.getName());
-            } catch (Exception e) {
-                System.err.println("Failed to zip directory: " + e.getMessage());
+        boolean toStdout = args[start].equals("-");
+        File destFile = toStdout ? null : resolvePath(args[start]);
+        if (format == null) {
+            format = toStdout ? ArchiveFormat.ZIP : ArchiveFormat.fromName(destFile.getName());
+        }
+        // Status goes to stderr when the archive itself is written to stdout.
+        PrintStream status = toStdout ? System.err : System.out;
+        try (ArchiveWriter archive = format.openWriter(toStdout ? standardOutput() : new FileOutputStream(destFile))) {
+            for (int i = start + 1; i < args.length; i++) {
+                addToArchive(resolvePath(args[i]), "", archive);
             }
+        } catch (IOException e) {
+            System.err.println("Failed to create archive: " + e.getMessage());
+            return;
         }
+        status.println("Archive created successfully: " + (toStdout ? "<stdout>" : destFile.getName()));
     }
 
     public void unzip(String[] args) {
+        File destDir;
         if (args.length == 3 && args[1].equals("-d")) {
-            File zipFile = resolvePath(args[0]);
-            File destDir = resolvePath(args[2]);
-
-            if (!zipFile.exists()) {
-                System.err.println("Zip file " + zipFile.getAbsolutePath() + " does not exist.");
-                return;
-            }
-
-            extractZip(zipFile, destDir);
+            destDir = resolvePath(args[2]);
         } else if (args.length == 1) {
-            File zipFile = resolvePath(args[0]);
+            destDir = currentDir;
+        } else {
+            System.err.println("Usage: unzip <archive|-> OR unzip <archive|-> -d <destination>");
+            return;
+        }
 
-            if (!zipFile.exists()) {
-                System.err.println("Zip file " + zipFile.getAbsolutePath() + " does not exist.");
-                return;
+        if (args[0].equals("-")) {
+            // The archive is the rest of stdin; whatever the reader leaves behind (a zip central
+            // directory, tar padding, unparseable data) is discarded rather than run as commands.
+            extractArchive(standardInput(), destDir);
+            try {
+                input.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException ignored) {
             }
-
-            extractZip(zipFile, currentDir);
-        } else {
-            System.err.println("Usage: unzip <archive.zip> OR unzip <archive.zip> -d <destination>");
+            return;
+        }
+        File zipFile = resolvePath(args[0]);
+        if (!zipFile.exists()) {
+            System.err.println("Archive " + zipFile.getAbsolutePath() + " does not exist.");
+            return;
+        }
+        try {
+            extractArchive(new FileInputStream(zipFile), destDir);
+        } catch (FileNotFoundException e) {
+            System.err.println("Failed to open archive: " + e.getMessage());
         }
     }
 
-    private void extractZip(File zipFile, File destDir) {
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile))) {
-
-            ZipEntry entry;
+    private void extractArchive(InputStream in, File destDir) {
+        byte[] buffer = new byte[ArchiveFormat.BUFFER_SIZE];
+        try (ArchiveReader archive = ArchiveFormat.openReader(in)) {
+            Path root = destDir.toPath().toAbsolutePath().normalize();
+            String name;
+            int entries = 0;
 
-            while ((entry = zis.getNextEntry()) != null) {
+            while ((name = archive.nextEntry()) != null) {
+                entries++;
 
-                File outputFile = new File(destDir, entry.getName());
+                Path outputPath = root.resolve(name).normalize();
+                if (!outputPath.startsWith(root)) {
+                    System.err.println("Skipping entry outside of destination: " + name);
+                    continue;
+                }
+                File outputFile = outputPath.toFile();
 
-                if (entry.isDirectory()) {
+                if (name.endsWith("/")) {
                     if (!outputFile.exists()) {
                         outputFile.mkdirs();
                     }
@@ -714,23 +2557,129 @@ public class Terminal {
                         parent.mkdirs();
                     }
 
-                    try (FileOutputStream fos = new FileOutputStream(outputFile)) {
-                        byte[] buffer = new byte[1024];
-                        int length;
-
-                        while ((length = zis.read(buffer)) > 0) {
-                            fos.write(buffer, 0, length);
-                        }
+                    try (FileOutputStream fos = new FileOutputStream(outputFile);
+                         InputStream entry = archive.entryStream()) {
+                        ArchiveFormat.copy(entry, fos, buffer);
                     }
                 }
-
-                zis.closeEntry();
             }
 
+            if (entries == 0) {
+                System.err.println("Failed to extract archive: no entries found.");
+                return;
+            }
             System.out.println("Archive extracted successfully to: " + destDir.getAbsolutePath());
 
         } catch (IOException e) {
-            System.err.println("Failed to extract zip: " + e.getMessage());
+            System.err.println("Failed to extract archive: " + e.getMessage());
+        }
+    }
+
+    private static final long CMP_WINDOW = 64L << 20;
+
+    public void cmp(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: cmp <file1|dir1> <file2|dir2>");
+            return;
+        }
+        File first = resolvePath(args[0]);
+        File second = resolvePath(args[1]);
+        for (File file : new File[]{first, second}) {
+            if (!file.exists()) {
+                System.err.println("File " + file.getAbsolutePath() + " does not exist.");
+                return;
+            }
+        }
+        try {
+            if (first.isDirectory() && second.isDirectory()) {
+                List<String> differences = compareTrees(first.toPath(), second.toPath());
+                differences.forEach(System.out::println);
+                if (differences.isEmpty()) {
+                    System.out.println("Directories " + args[0] + " and " + args[1] + " are identical.");
+                }
+            } else if (first.isDirectory() || second.isDirectory()) {
+                System.err.println("Cannot compare a file with a directory.");
+            } else {
+                String difference = compareFiles(first.toPath(), second.toPath(), args[0], args[1]);
+                System.out.println(difference != null ? difference : "Files " + args[0] + " and " + args[1] + " are identical.");
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Failed to compare: " + e.getMessage());
+        }
+    }
+
+    // Maps both files window by window and stops at the first mismatching byte.
+    private static String compareFiles(Path first, Path second, String firstName, String secondName) throws IOException {
+        try (FileChannel a = FileChannel.open(first, StandardOpenOption.READ);
+             FileChannel b = FileChannel.open(second, StandardOpenOption.READ)) {
+            long sizeA = a.size();
+            long sizeB = b.size();
+            long common = Math.min(sizeA, sizeB);
+            for (long position = 0; position < common; position += CMP_WINDOW) {
+                long length = Math.min(CMP_WINDOW, common - position);
+                int mismatch = a.map(FileChannel.MapMode.READ_ONLY, position, length)
+                        .mismatch(b.map(FileChannel.MapMode.READ_ONLY, position, length));
+                if (mismatch >= 0) {
+                    return firstName + " " + secondName + " differ: byte " + (position + mismatch + 1);
+                }
+            }
+            if (sizeA != sizeB) {
+                return "cmp: EOF on " + (sizeA < sizeB ? firstName : secondName) + " after byte " + common;
+            }
+            return null;
+        }
+    }
+
+    private List<String> compareTrees(Path first, Path second) throws IOException {
+        SortedSet<String> names = new TreeSet<>();
+        List<String> firstFiles = regularFiles(first);
+        List<String> secondFiles = regularFiles(second);
+        names.addAll(firstFiles);
+        names.addAll(secondFiles);
+        Set<String> inFirst = new HashSet<>(firstFiles);
+        Set<String> inSecond = new HashSet<>(secondFiles);
+        return new ArrayList<>(names).parallelStream().map(name -> {
+            if (!inSecond.contains(name)) {
+                return "Only in " + first + ": " + name;
+            }
+            if (!inFirst.contains(name)) {
+                return "Only in " + second + ": " + name;
+            }
+            try {
+                return compareFiles(first.resolve(name), second.resolve(name),
+                        first.resolve(name).toString(), second.resolve(name).toString());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).filter(Objects::nonNull).toList();
+    }
+
+    private static List<String> regularFiles(Path root) throws IOException {
+        try (Stream<Path> stream = Files.walk(root)) {
+            return stream.filter(Files::isRegularFile).map(path -> root.relativize(path).toString()).toList();
+        }
+    }
+
+    public void diff(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: diff <file1> <file2>");
+            return;
+        }
+        File first = resolvePath(args[0]);
+        File second = resolvePath(args[1]);
+        for (File file : new File[]{first, second}) {
+            if (!file.isFile()) {
+                System.err.println("File " + file.getAbsolutePath() + " does not exist.");
+                return;
+            }
+        }
+        try (BufferedReader left = Files.newBufferedReader(first.toPath());
+             BufferedReader right = Files.newBufferedReader(second.toPath())) {
+            if (!new StreamingDiff(left, right, System.out).run()) {
+                System.out.println("Files " + args[0] + " and " + args[1] + " are identical.");
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to compare: " + e.getMessage());
         }
     }
 
@@ -743,7 +2692,7 @@ public class Terminal {
                     try {
                         File file2 = resolvePath(args[1]);
                         String output = pwd() + "\n";
-                        Files.write(file2.toPath(), output.getBytes());
+                        atomicWrite(file2.toPath(), out -> out.write(output.getBytes()));
                         System.out.println("File content successfully written to " + file2.getName());
                     } catch (IOException e) {
                         System.out.println("Error reading file: " + e.getMessage());
@@ -752,7 +2701,7 @@ public class Terminal {
                     try {
                         File file2 = resolvePath(args[1]);
                         String output = pwd() + "\n";
-                        Files.write(file2.toPath(), output.getBytes(), StandardOpenOption.APPEND);
+                        appendWrite(file2.toPath(), out -> out.write(output.getBytes()));
                         System.out.println("File content successfully written to " + file2.getName());
                     } catch (IOException e) {
                         System.out.println("Error reading file: " + e.getMessage());
@@ -792,6 +2741,21 @@ public class Terminal {
             case "wc":
                 wc(args);
                 break;
+            case "head":
+                head(args);
+                break;
+            case "tail":
+                tail(args);
+                break;
+            case "sort":
+                sort(args);
+                break;
+            case "cmp":
+                cmp(args);
+                break;
+            case "diff":
+                diff(args);
+                break;
             case "zip":
                 zip(args);
                 break;